@@ -19,7 +19,6 @@ import java.time.ZoneId;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.regex.Pattern;
 
 /**
@@ -33,10 +32,13 @@ public class Country {
 
     private final String code;
     private final String name;
-    private final Map<String, State> states = new TreeMap<>();
+    private volatile Map<String, State> states;
     private final Collection<ZoneId> timeZones = new HashSet<>();
     private Pattern postalCodePattern = ANY_POSTAL_CODE;
     private String phonePrefix = "";
+    private String phoneTrunkPrefix = "";
+    private PhoneFormat[] nationalPhoneFormats = PhoneFormat.NONE;
+    private PhoneFormat[] internationalPhoneFormats = PhoneFormat.NONE;
 
     public Country(String code, String name) {
         this.code = code;
@@ -51,20 +53,42 @@ public class Country {
         return name;
     }
 
+    /**
+     * Subdivisions are only loaded on first access to this country's states or time zones
+     */
     public Map<String, State> getStates() {
+        Map<String, State> states = this.states;
+        if (states == null) {
+            synchronized (this) {
+                states = this.states;
+                if (states == null) {
+                    states = Internationalization.loadStates(code);
+                    // be sure all timeZones are there
+                    for (State state : states.values()) {
+                        timeZones.addAll(state.getTimeZones());
+                    }
+                    this.states = states;
+                }
+            }
+        }
         return states;
     }
 
     public State getState(String code) {
-        return states.get(code);
+        return getStates().get(code);
     }
 
     public Collection<ZoneId> getTimeZones() {
+        getStates();
         return timeZones;
     }
 
     public ZoneId getFirstTimeZone() {
-        return timeZones.iterator().next();
+        return getTimeZones().iterator().next();
+    }
+
+    void addTimeZone(ZoneId zoneId) {
+        timeZones.add(zoneId);
     }
 
     public Pattern getPostalCodePattern() {
@@ -83,9 +107,40 @@ public class Country {
         this.phonePrefix = phonePrefix;
     }
 
+    /**
+     * @return the prefix dialed before a national number inside the country (i.e. "0" in France), or an empty string
+     */
+    public String getPhoneTrunkPrefix() {
+        return phoneTrunkPrefix;
+    }
+
+    public void setPhoneTrunkPrefix(String phoneTrunkPrefix) {
+        this.phoneTrunkPrefix = phoneTrunkPrefix;
+    }
+
+    public boolean hasPhoneFormats() {
+        return phoneTrunkPrefix.length() > 0 || nationalPhoneFormats.length > 0;
+    }
+
+    public PhoneFormat[] getNationalPhoneFormats() {
+        return nationalPhoneFormats;
+    }
+
+    public void setNationalPhoneFormats(PhoneFormat[] nationalPhoneFormats) {
+        this.nationalPhoneFormats = nationalPhoneFormats;
+    }
+
+    public PhoneFormat[] getInternationalPhoneFormats() {
+        return internationalPhoneFormats;
+    }
+
+    public void setInternationalPhoneFormats(PhoneFormat[] internationalPhoneFormats) {
+        this.internationalPhoneFormats = internationalPhoneFormats;
+    }
+
     public State addState(String code, String name) {
         State state = new State(code, name);
-        states.put(state.getCode(), state);
+        getStates().put(state.getCode(), state);
         return state;
     }
 
@@ -16,10 +16,12 @@
 package com.guestful.i18n;
 
 import javax.json.*;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -31,8 +33,25 @@ public class Internationalization {
     //private static final List<Locale> SUPPORTED_LOCALES = Collections.unmodifiableList(Arrays.asList(Locale.ENGLISH, Locale.FRENCH));
     public static final List<String> SUPPORTED_LANGS = Collections.unmodifiableList(Arrays.asList(Locale.getISOLanguages()));
 
+    private static final Set<String> SUPPORTED_LANG_SET = new HashSet<>(SUPPORTED_LANGS);
+
     private static final Map<String, Country> COUNTRIES = load();
 
+    static final PhoneNumberMetadata PHONE_METADATA = loadPhoneMetadata(COUNTRIES);
+
+    private static final Function<PhoneNumberCache.Key, PhoneNumber> PHONE_NUMBER_PARSER = key -> key.withPhoneCode ?
+        parse(key.phoneNumber, key.phoneCode, key.defaultCountryCode) :
+        parse(key.phoneNumber, key.defaultCountryCode);
+
+    private static volatile PhoneNumberCache phoneNumberCache;
+
+    /**
+     * Same as {@code SUPPORTED_LANGS.contains(lang)}, without scanning the list
+     */
+    public static boolean isSupportedLang(String lang) {
+        return lang != null && SUPPORTED_LANG_SET.contains(lang);
+    }
+
     public static Collection<String> getTimeZones() {
         return ZoneId.getAvailableZoneIds();
     }
@@ -153,7 +172,32 @@ public class Internationalization {
         return country;
     }
 
+    public static PhoneNumberCache getPhoneNumberCache() {
+        return phoneNumberCache;
+    }
+
+    /**
+     * Cache the results of the parsePhoneNumber methods, or stop caching them if null
+     */
+    public static void setPhoneNumberCache(PhoneNumberCache cache) {
+        phoneNumberCache = cache;
+    }
+
     public static PhoneNumber parsePhoneNumber(String phoneNumber, String phoneCode, String defaultCountryCode) {
+        PhoneNumberCache cache = phoneNumberCache;
+        return cache == null ?
+            parse(phoneNumber, phoneCode, defaultCountryCode) :
+            cache.get(new PhoneNumberCache.Key(phoneNumber, phoneCode, defaultCountryCode, true), PHONE_NUMBER_PARSER);
+    }
+
+    public static PhoneNumber parsePhoneNumber(String phoneNumber, String defaultCountryCode) {
+        PhoneNumberCache cache = phoneNumberCache;
+        return cache == null ?
+            parse(phoneNumber, defaultCountryCode) :
+            cache.get(new PhoneNumberCache.Key(phoneNumber, null, defaultCountryCode, false), PHONE_NUMBER_PARSER);
+    }
+
+    private static PhoneNumber parse(String phoneNumber, String phoneCode, String defaultCountryCode) {
         final String phonePrefix;
         if (phoneCode != null && phoneCode.length() > 0 && !phoneCode.startsWith("+")) {
             phonePrefix = "+" + phoneCode;
@@ -174,20 +218,19 @@ public class Internationalization {
         }
 
         // find country
-        Country country;
-        Optional<Country> o = COUNTRIES.values().stream().filter(c -> c.getPhonePrefix().equals(phonePrefix)).findFirst();
-        if (o.isPresent()) {
-            country = o.get();
-        } else {
+        Country country = phonePrefix == null ? null : phoneCountry(PhoneNumberMetadata.callingCode(phonePrefix), defaultCountryCode);
+        boolean guessed = false;
+        if (country == null) {
             // could the addition of + be a mistake, and also the eventually starting country code ?
             // Only keep the last 1 digits
             country = getCountry(defaultCountryCode);
+            guessed = phonePrefix != null && phonePrefix.length() > 0;
         }
 
-        return new PhoneNumber(country, phoneNumber, extension);
+        return new PhoneNumber(country, phoneNumber, extension, guessed);
     }
 
-    public static PhoneNumber parsePhoneNumber(String phoneNumber, String defaultCountryCode) {
+    private static PhoneNumber parse(String phoneNumber, String defaultCountryCode) {
         if (!PhoneNumber.isNormalized(phoneNumber)) {
             phoneNumber = PhoneNumber.normalize(phoneNumber);
         }
@@ -202,28 +245,156 @@ public class Internationalization {
 
         // find country
         Country country;
-        if (phoneNumber.length() > 10 && !phoneNumber.startsWith("+")) {
+        boolean guessed = false;
+        if (phoneNumber.length() > 10 && !phoneNumber.startsWith("+") && !isNational(getCountry(defaultCountryCode), phoneNumber)) {
             // user probably entered its phone number without the "+" sign but with the international prefix
             phoneNumber = "+" + phoneNumber;
         }
         if (phoneNumber.startsWith("+")) {
-            final String phone = phoneNumber;
-            List<String> prefixes = Arrays.asList(2, 3, 4).stream().map(end -> phone.substring(0, end)).collect(Collectors.toList());
-            Optional<Country> o = COUNTRIES.values().stream().filter(c -> prefixes.contains(c.getPhonePrefix())).findFirst();
-            if (o.isPresent()) {
-                country = o.get();
+            country = findPhoneCountry(phoneNumber, defaultCountryCode);
+            if (country != null) {
                 phoneNumber = phoneNumber.substring(country.getPhonePrefix().length());
             } else {
                 // could the addition of + be a mistake, and also the eventually starting country code ?
                 // Only keep the last 1 digits
                 country = getCountry(defaultCountryCode);
+                String digits = phoneNumber.substring(1);
                 phoneNumber = phoneNumber.substring(Integer.max(phoneNumber.length(), 11) - 10);
+                // unless only the trunk prefix was dropped (i.e. 07911 123456 in GB), the country code is unknown
+                String trunkPrefix = country.getPhoneTrunkPrefix();
+                guessed = digits.length() - phoneNumber.length() != trunkPrefix.length() || !digits.startsWith(trunkPrefix);
             }
         } else {
             country = getCountry(defaultCountryCode);
         }
 
-        return new PhoneNumber(country, phoneNumber, extension);
+        return new PhoneNumber(country, phoneNumber, extension, guessed);
+    }
+
+    /**
+     * @return the country of the calling code starting an international number like "+15146604287", or null
+     */
+    private static Country findPhoneCountry(String phoneNumber, String defaultCountryCode) {
+        Country country = null;
+        int callingCode = 0;
+        for (int i = 1; country == null && i < 4 && i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            // calling codes never start with 0
+            if (c < '0' || c > '9' || c == '0' && i == 1) break;
+            callingCode = callingCode * 10 + (c - '0');
+            country = phoneCountry(callingCode, defaultCountryCode);
+        }
+        return country;
+    }
+
+    /**
+     * @return the default country if it uses this calling code (i.e. US for +1), else the main country of the calling code, or null
+     */
+    private static Country phoneCountry(int callingCode, String defaultCountryCode) {
+        Country country = defaultCountryCode == null ? null : COUNTRIES.get(defaultCountryCode);
+        if (country != null && PhoneNumberMetadata.callingCode(country.getPhonePrefix()) == callingCode) return country;
+        return PHONE_METADATA.getCountry(callingCode);
+    }
+
+    /**
+     * Check the length and leading digit of a raw phone number without parsing it.
+     * Unlike {@link #parsePhoneNumber(String, String)}, an international number with an unknown country code
+     * is reported as {@link PhoneNumberValidity#INVALID_COUNTRY_CODE} instead of being attached to the default country.
+     */
+    public static PhoneNumberValidity validatePhoneNumber(CharSequence phoneNumber, String defaultCountryCode) {
+        return validatePhoneNumber(phoneNumber, getCountry(defaultCountryCode));
+    }
+
+    /**
+     * Keep only the raw phone numbers which are possible, in a single pass and without creating any intermediate object.
+     */
+    public static List<String> filterPossiblePhoneNumbers(Collection<String> phoneNumbers, String defaultCountryCode) {
+        Country country = getCountry(defaultCountryCode);
+        List<String> possible = new ArrayList<>(phoneNumbers.size());
+        for (String phoneNumber : phoneNumbers) {
+            if (validatePhoneNumber(phoneNumber, country) == PhoneNumberValidity.POSSIBLE) {
+                possible.add(phoneNumber);
+            }
+        }
+        return possible;
+    }
+
+    static PhoneNumberValidity validatePhoneNumber(CharSequence phoneNumber, Country defaultCountry) {
+        if (phoneNumber == null) return PhoneNumberValidity.NOT_A_NUMBER;
+
+        // same rules as normalize() and parsePhoneNumber(): count the digits before the extension and keep the first ones
+        boolean international = false;
+        int length = 0;
+        long head = 0; // first 16 digits, 4 bits each
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (length < 16) head |= (long) (c - '0') << (length << 2);
+                length++;
+            } else if (c == 'x' || c == 'X') {
+                break;
+            } else if (c == '+' && length == 0) {
+                international = true;
+            }
+        }
+        if (length == 0) return PhoneNumberValidity.NOT_A_NUMBER;
+
+        // find country
+        Country country = null;
+        int callingCode = 0;
+        int offset = 0;
+        if (international || length > 10 && !isNational(defaultCountry, length, startsWith(head, 0, defaultCountry.getPhoneTrunkPrefix()))) {
+            // calling codes never start with 0
+            while (country == null && offset < 3 && offset < length && digit(head, 0) != 0) {
+                callingCode = callingCode * 10 + digit(head, offset++);
+                country = PHONE_METADATA.getCountry(callingCode);
+            }
+            if (country == null) {
+                // like the parser, only keep the last 10 digits: fine if just the trunk prefix is dropped
+                offset = Integer.max(length - 10, 0);
+                String trunkPrefix = defaultCountry.getPhoneTrunkPrefix();
+                if (offset != trunkPrefix.length() || !startsWith(head, 0, trunkPrefix)) {
+                    return PhoneNumberValidity.INVALID_COUNTRY_CODE;
+                }
+                country = defaultCountry;
+                callingCode = PhoneNumberMetadata.callingCode(country.getPhonePrefix());
+            }
+        } else {
+            country = defaultCountry;
+            callingCode = PhoneNumberMetadata.callingCode(country.getPhonePrefix());
+        }
+
+        // skip trunk prefix
+        String trunkPrefix = country.getPhoneTrunkPrefix();
+        if (trunkPrefix.length() > 0 && offset + trunkPrefix.length() < length && startsWith(head, offset, trunkPrefix)) {
+            offset += trunkPrefix.length();
+        }
+
+        return PHONE_METADATA.check(callingCode, length - offset, digit(head, offset));
+    }
+
+    /**
+     * @return true if a number typed without "+" fits the national numbers of the default country once its trunk prefix is dropped
+     * (i.e. an 11 digits mobile number in BR), so it must not be read as starting with a calling code
+     */
+    private static boolean isNational(Country defaultCountry, String phoneNumber) {
+        return isNational(defaultCountry, phoneNumber.length(), phoneNumber.startsWith(defaultCountry.getPhoneTrunkPrefix()));
+    }
+
+    private static boolean isNational(Country defaultCountry, int length, boolean trunkPrefixed) {
+        int nationalLength = trunkPrefixed ? length - defaultCountry.getPhoneTrunkPrefix().length() : length;
+        return nationalLength <= PHONE_METADATA.getMaxLength(PhoneNumberMetadata.callingCode(defaultCountry.getPhonePrefix()));
+    }
+
+    private static int digit(long head, int index) {
+        return (int) (head >>> (index << 2)) & 0xF;
+    }
+
+    private static boolean startsWith(long head, int offset, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (digit(head, offset + i) != prefix.charAt(i) - '0') return false;
+        }
+        return true;
     }
 
     public static List<String> getLocalizedPaths(String path, Locale locale) {
@@ -263,7 +434,7 @@ public class Internationalization {
             scanner.useDelimiter(",");
             while (scanner.hasNext()) {
                 String line = scanner.nextLine();
-                countries.get(line.substring(0, 2)).getTimeZones().add(ZoneId.of(line.substring(3)));
+                countries.get(line.substring(0, 2)).addTimeZone(ZoneId.of(line.substring(3)));
             }
         }
 
@@ -299,86 +470,63 @@ public class Internationalization {
             throw new IllegalStateException(e);
         }
 
-        // add states
-        {
-            Country ca = countries.get("CA");
-            ca.addState("AB", "Alberta").addTimeZone("Canada/Mountain");
-            ca.addState("BC", "British Columbia").addTimeZone("Canada/Pacific");
-            ca.addState("MB", "Manitoba").addTimeZone("Canada/Central");
-            ca.addState("NB", "New Brunswick").addTimeZone("Canada/Eastern");
-            ca.addState("NL", "Newfoundland and Labrador").addTimeZone("Canada/Newfoundland");
-            ca.addState("NT", "Northwest Territories").addTimeZone("Canada/Mountain");
-            ca.addState("NS", "Nova Scotia").addTimeZone("Canada/Atlantic");
-            ca.addState("NU", "Nunavut").addTimeZone("Canada/Eastern");
-            ca.addState("ON", "Ontario").addTimeZone("Canada/Eastern");
-            ca.addState("PE", "Prince Edward Island").addTimeZone("Canada/Atlantic");
-            ca.addState("QC", "Quebec").addTimeZone("Canada/Eastern");
-            ca.addState("SK", "Saskatchewan").addTimeZone("Canada/Central");
-            ca.addState("YT", "Yukon").addTimeZone("Canada/Pacific");
-
-            Country us = countries.get("US");
-            us.addState("AL", "Alabama").addTimeZone("US/Central");
-            us.addState("AK", "Alaska").addTimeZone("US/Alaska");
-            us.addState("AZ", "Arizona").addTimeZone("US/Arizona");
-            us.addState("AR", "Arkansas").addTimeZone("US/Central");
-            us.addState("CA", "California").addTimeZone("US/Pacific");
-            us.addState("CO", "Colorado").addTimeZone("US/Mountain");
-            us.addState("CT", "Connecticut").addTimeZone("US/Eastern");
-            us.addState("DE", "Delaware").addTimeZone("US/Eastern");
-            us.addState("DC", "District of Columbia").addTimeZone("US/Eastern");
-            us.addState("FL", "Florida").addTimeZone("US/Eastern");
-            us.addState("GA", "Georgia").addTimeZone("US/Eastern");
-            us.addState("HI", "Hawaii").addTimeZone("US/Hawaii");
-            us.addState("ID", "Idaho").addTimeZone("US/Mountain");
-            us.addState("IL", "Illinois").addTimeZone("US/Central");
-            us.addState("IN", "Indiana").addTimeZone("US/Eastern");
-            us.addState("IA", "Iowa").addTimeZone("US/Central");
-            us.addState("KS", "Kansas").addTimeZone("US/Central");
-            us.addState("KY", "Kentucky").addTimeZone("US/Eastern");
-            us.addState("LA", "Louisiana").addTimeZone("US/Central");
-            us.addState("ME", "Maine").addTimeZone("US/Eastern");
-            us.addState("MD", "Maryland").addTimeZone("US/Eastern");
-            us.addState("MA", "Massachusetts").addTimeZone("US/Eastern");
-            us.addState("MI", "Michigan").addTimeZone("US/Eastern");
-            us.addState("MN", "Minnesota").addTimeZone("US/Central");
-            us.addState("MS", "Mississippi").addTimeZone("US/Central");
-            us.addState("MO", "Missouri").addTimeZone("US/Central");
-            us.addState("MT", "Montana").addTimeZone("US/Mountain");
-            us.addState("NE", "Nebraska").addTimeZone("US/Central");
-            us.addState("NV", "Nevada").addTimeZone("US/Pacific");
-            us.addState("NH", "New Hampshire").addTimeZone("US/Eastern");
-            us.addState("NJ", "New Jersey").addTimeZone("US/Eastern");
-            us.addState("NM", "New Mexico").addTimeZone("US/Mountain");
-            us.addState("NY", "New York").addTimeZone("US/Eastern");
-            us.addState("NC", "North Carolina").addTimeZone("US/Eastern");
-            us.addState("ND", "North Dakota").addTimeZone("US/Central");
-            us.addState("OH", "Ohio").addTimeZone("US/Eastern");
-            us.addState("OK", "Oklahoma").addTimeZone("US/Central");
-            us.addState("OR", "Oregon").addTimeZone("US/Pacific");
-            us.addState("PA", "Pennsylvania").addTimeZone("US/Eastern");
-            us.addState("RI", "Rhode Island").addTimeZone("US/Eastern");
-            us.addState("SC", "South Carolina").addTimeZone("US/Eastern");
-            us.addState("SD", "South Dakota").addTimeZone("US/Central");
-            us.addState("TN", "Tennessee").addTimeZone("US/Central");
-            us.addState("TX", "Texas").addTimeZone("US/Central");
-            us.addState("UT", "Utah").addTimeZone("US/Mountain");
-            us.addState("VT", "Vermont").addTimeZone("US/Eastern");
-            us.addState("VA", "Virginia").addTimeZone("US/Eastern");
-            us.addState("WA", "Washington").addTimeZone("US/Pacific");
-            us.addState("WV", "West Virginia").addTimeZone("US/Eastern");
-            us.addState("WI", "Wisconsin").addTimeZone("US/Central");
-            us.addState("WY", "Wyoming").addTimeZone("US/Mountain");
+        // load phone trunk prefixes and display formats: country,trunk prefix,national formats,international formats
+        try (Scanner scanner = new Scanner(Internationalization.class.getResourceAsStream("/com/guestful/i18n/phoneFormats.csv"), "UTF-8")) {
+            while (scanner.hasNextLine()) {
+                String[] cols = scanner.nextLine().split(",", -1);
+                Country country = countries.get(cols[0]);
+                if (country == null) {
+                    throw new IllegalStateException("No country: " + cols[0]);
+                }
+                PhoneFormat[] national = PhoneFormat.compileAll(cols[2]);
+                country.setPhoneTrunkPrefix(cols[1]);
+                country.setNationalPhoneFormats(national);
+                country.setInternationalPhoneFormats(cols[3].length() == 0 ? national : PhoneFormat.compileAll(cols[3]));
+            }
         }
 
-        // be sure all timeZones are there
-        countries.values()
-            .forEach(country ->
-                country.getTimeZones().addAll(country.getStates().values().stream().flatMap(state ->
-                    state.getTimeZones().stream()).collect(Collectors.toSet())));
-
         return countries;
     }
 
+    static Map<String, State> loadStates(String countryCode) {
+        Map<String, State> states = new TreeMap<>();
+        InputStream stream = Internationalization.class.getResourceAsStream("/com/guestful/i18n/subdivisions/" + countryCode + ".csv");
+        if (stream == null) {
+            return states;
+        }
+
+        // load ISO 3166-2 subdivisions: code,time zone (optional),name
+        Map<String, ZoneId> zones = new HashMap<>();
+        try (Scanner scanner = new Scanner(stream, "UTF-8")) {
+            while (scanner.hasNextLine()) {
+                String[] cols = scanner.nextLine().split(",", 3);
+                State state = new State(cols[0], cols[2]);
+                if (cols[1].length() > 0) {
+                    state.addTimeZone(zones.computeIfAbsent(cols[1], ZoneId::of));
+                }
+                states.put(state.getCode(), state);
+            }
+        }
+        return states;
+    }
+
+    static PhoneNumberMetadata loadPhoneMetadata(Map<String, Country> countries) {
+        PhoneNumberMetadata metadata = new PhoneNumberMetadata();
+        // the main country of a shared calling code is the first one having phone formats (i.e. +1 is CA, not AG)
+        countries.values().stream().filter(Country::hasPhoneFormats).forEach(metadata::addCountry);
+        countries.values().forEach(metadata::addCountry);
+
+        // load national number rules: calling code,min length,max length,allowed leading digits
+        try (Scanner scanner = new Scanner(Internationalization.class.getResourceAsStream("/com/guestful/i18n/phoneLengths.csv"), "UTF-8")) {
+            while (scanner.hasNextLine()) {
+                String[] cols = scanner.nextLine().split(",");
+                metadata.setRules(Integer.parseInt(cols[0]), Integer.parseInt(cols[1]), Integer.parseInt(cols[2]), cols[3]);
+            }
+        }
+
+        return metadata;
+    }
+
     @SuppressWarnings("unchecked")
     public static <String, T> Map<String, T> map(Object... entries) {
         Map<String, Object> map = new LinkedHashMap<>();
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.i18n;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Picks the best available locale for a list of user preferences (i.e. from an Accept-Language header).
+ * <p>
+ * Each preference is tried in order: the full locale, then its language and country (without script or variant),
+ * then its language only. Unlike {@link Internationalization#getLocalizedPaths(String, Locale)}, the language step also
+ * matches an available locale of another country when the bare language is not available (i.e. "fr_FR" matches "fr_CA").
+ * When nothing matches, the default locale is returned. Results of the most recently used preference lists are memoized.
+ */
+public final class LocaleMatcher {
+
+    private static final int MAX_CACHED = 1024;
+
+    private final Map<String, Locale> tags = new HashMap<>();
+    private final Locale defaultLocale;
+    private final Cache cache = new Cache();
+
+    public LocaleMatcher(Collection<Locale> availableLocales, Locale defaultLocale) {
+        for (Locale locale : availableLocales) {
+            tags.put(locale.toString(), locale);
+        }
+        // a language alone matches its first available locale (i.e. "fr" matches "fr_CA" if there is no "fr")
+        for (Locale locale : availableLocales) {
+            tags.putIfAbsent(locale.getLanguage(), locale);
+        }
+        this.defaultLocale = defaultLocale;
+    }
+
+    public Locale getDefaultLocale() {
+        return defaultLocale;
+    }
+
+    public boolean isAvailable(Locale locale) {
+        return locale != null && tags.containsKey(locale.toString());
+    }
+
+    public Locale match(List<Locale> preferences) {
+        if (preferences == null || preferences.isEmpty()) return defaultLocale;
+        String key = key(preferences);
+        Locale locale;
+        synchronized (cache) {
+            locale = cache.get(key);
+        }
+        if (locale == null) {
+            locale = resolve(preferences);
+            synchronized (cache) {
+                cache.put(key, locale);
+            }
+        }
+        return locale;
+    }
+
+    // i.e. "fr_CA__,en___," for [fr_CA, en], built from the locale fields to avoid calling toString() on each of them
+    private static String key(List<Locale> preferences) {
+        StringBuilder key = new StringBuilder(16 * preferences.size());
+        for (Locale preference : preferences) {
+            if (preference == null) continue;
+            key.append(preference.getLanguage()).append('_')
+                .append(preference.getCountry()).append('_')
+                .append(preference.getScript()).append('_')
+                .append(preference.getVariant());
+            if (!preference.getExtensionKeys().isEmpty()) {
+                key.append('#').append(preference.toLanguageTag());
+            }
+            key.append(',');
+        }
+        return key.toString();
+    }
+
+    private Locale resolve(List<Locale> preferences) {
+        for (Locale preference : preferences) {
+            if (preference == null) continue;
+            String tag = preference.toString();
+            Locale locale = tags.get(tag);
+            if (locale == null && preference.getCountry().length() > 0) {
+                // i.e. "zh_TW_#Hant" or "en_US_POSIX"
+                String languageCountry = preference.getLanguage() + "_" + preference.getCountry();
+                if (!languageCountry.equals(tag)) {
+                    locale = tags.get(languageCountry);
+                }
+            }
+            if (locale == null) {
+                locale = tags.get(preference.getLanguage());
+            }
+            if (locale != null) return locale;
+        }
+        return defaultLocale;
+    }
+
+    private static final class Cache extends LinkedHashMap<String, Locale> {
+
+        private static final long serialVersionUID = 1L;
+
+        Cache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Locale> eldest) {
+            return size() > MAX_CACHED;
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.i18n;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A digit grouping template such as "(###) ###-####" or "# ## ## ## ##", compiled once
+ * into group lengths and the literals found between them.
+ * A template can be restricted to numbers starting with some digits, i.e. "4:### ### ###".
+ */
+public final class PhoneFormat {
+
+    static final PhoneFormat[] NONE = new PhoneFormat[0];
+
+    private final String template;
+    // literals[i] is appended before groups[i], literals[groups.length] after the last group
+    private final String[] literals;
+    private final int[] groups;
+    private final int length;
+    // bit n is set when the number can start with digit n
+    private final int leadingDigits;
+
+    private PhoneFormat(String template, String[] literals, int[] groups, int length, int leadingDigits) {
+        this.template = template;
+        this.literals = literals;
+        this.groups = groups;
+        this.length = length;
+        this.leadingDigits = leadingDigits;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return the number of digits this format accepts
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Append the given digits to the builder using this format.
+     *
+     * @return false (and leave the builder untouched) if the digits do not fit this format
+     */
+    public boolean appendTo(StringBuilder sb, CharSequence digits) {
+        if (digits.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        if ((leadingDigits & (1 << (digits.charAt(0) - '0'))) == 0) return false;
+        int pos = 0;
+        for (int i = 0; i < groups.length; i++) {
+            sb.append(literals[i]).append(digits, pos, pos + groups[i]);
+            pos += groups[i];
+        }
+        sb.append(literals[groups.length]);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    /**
+     * Compile a template where each '#' stands for one digit and any other character is a literal.
+     * The template can be prefixed by the allowed leading digits and a colon, i.e. "4:### ### ###".
+     */
+    public static PhoneFormat compile(String template) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> groups = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int leadingDigits = 0x3FF;
+        int length = 0;
+        int i = 0;
+        int colon = template.indexOf(':');
+        if (colon >= 0) {
+            leadingDigits = 0;
+            for (; i < colon; i++) {
+                char c = template.charAt(i);
+                if (c < '0' || c > '9') {
+                    throw new IllegalArgumentException("Illegal phone format: bad leading digit in " + template);
+                }
+                leadingDigits |= 1 << (c - '0');
+            }
+            i = colon + 1;
+        }
+        while (i < template.length()) {
+            if (template.charAt(i) == '#') {
+                int start = i;
+                while (i < template.length() && template.charAt(i) == '#') i++;
+                literals.add(literal.toString().intern());
+                literal.setLength(0);
+                groups.add(i - start);
+                length += i - start;
+            } else {
+                literal.append(template.charAt(i++));
+            }
+        }
+        if (groups.isEmpty()) {
+            throw new IllegalArgumentException("Illegal phone format: no digit in " + template);
+        }
+        literals.add(literal.toString().intern());
+        return new PhoneFormat(template, literals.toArray(new String[literals.size()]), groups.stream().mapToInt(Integer::intValue).toArray(), length, leadingDigits);
+    }
+
+    /**
+     * Compile a list of templates separated by '|'
+     */
+    static PhoneFormat[] compileAll(String templates) {
+        if (templates == null || templates.length() == 0) return NONE;
+        String[] parts = templates.split("\\|");
+        PhoneFormat[] formats = new PhoneFormat[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            formats[i] = compile(parts[i]);
+        }
+        return formats;
+    }
+
+    /**
+     * Append the digits with the first format accepting their length and leading digit, or as-is if none does
+     */
+    static StringBuilder appendTo(StringBuilder sb, PhoneFormat[] formats, CharSequence digits) {
+        for (PhoneFormat format : formats) {
+            if (format.appendTo(sb, digits)) return sb;
+        }
+        return sb.append(digits);
+    }
+
+}
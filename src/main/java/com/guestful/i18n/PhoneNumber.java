@@ -29,16 +29,30 @@ public class PhoneNumber {
     private final Country country;
     private final String phoneNumber;
     private final String extension;
+    private final boolean countryCodeGuessed;
 
     PhoneNumber(Country country, String phoneNumber, String extension) {
-        // normalize phone number
-        if ("FR".equals(country.getCode()) && phoneNumber.startsWith("0")) {
-            // In france, 04 78 12 13 14 translates to +33 4 78 12 13 14
-            phoneNumber = phoneNumber.substring(1);
+        this(country, phoneNumber, extension, false);
+    }
+
+    /**
+     * @param countryCodeGuessed true if the number had an unknown country code and was attached to the default country
+     */
+    PhoneNumber(Country country, String phoneNumber, String extension, boolean countryCodeGuessed) {
+        // normalize phone number: remove the trunk prefix
+        // i.e. in france, 04 78 12 13 14 translates to +33 4 78 12 13 14
+        String trunkPrefix = country.getPhoneTrunkPrefix();
+        if (trunkPrefix.length() > 0 && phoneNumber.startsWith(trunkPrefix)) {
+            phoneNumber = phoneNumber.substring(trunkPrefix.length());
         }
         this.country = country;
         this.phoneNumber = phoneNumber;
         this.extension = extension;
+        this.countryCodeGuessed = countryCodeGuessed;
+    }
+
+    public Country getCountry() {
+        return country;
     }
 
     public String getCountryPrefix() {
@@ -58,16 +72,72 @@ public class PhoneNumber {
         return extension;
     }
 
+    /**
+     * @return true if the country code entered was unknown, in which case the default country was used
+     */
+    public boolean isCountryCodeGuessed() {
+        return countryCodeGuessed;
+    }
+
     public String format() {
         return getCountryPrefix() + getPhoneNumber();
     }
 
     public String getFormatedPhoneNumber() {
-        if ("FR".equals(country.getCode())) {
-            // In france, 04 78 12 13 14 translates to +33 4 78 12 13 14
-            return "0" + phoneNumber;
+        return country.getPhoneTrunkPrefix() + phoneNumber;
+    }
+
+    /**
+     * Append the phone number as dialed inside its country, i.e. "04 78 50 98 46" or "(514) 660-4287"
+     */
+    public StringBuilder appendNational(StringBuilder sb) {
+        sb.append(country.getPhoneTrunkPrefix());
+        PhoneFormat.appendTo(sb, country.getNationalPhoneFormats(), phoneNumber);
+        return appendExtension(sb);
+    }
+
+    /**
+     * Append the phone number as dialed from abroad, i.e. "+33 4 78 50 98 46" or "+1 514-660-4287"
+     */
+    public StringBuilder appendInternational(StringBuilder sb) {
+        String prefix = country.getPhonePrefix();
+        if (prefix.length() > 0) {
+            sb.append(prefix).append(' ');
         }
-        return phoneNumber;
+        PhoneFormat.appendTo(sb, country.getInternationalPhoneFormats(), phoneNumber);
+        return appendExtension(sb);
+    }
+
+    public String formatNational() {
+        return appendNational(new StringBuilder(32)).toString();
+    }
+
+    public String formatInternational() {
+        return appendInternational(new StringBuilder(32)).toString();
+    }
+
+    private StringBuilder appendExtension(StringBuilder sb) {
+        if (extension.length() > 0) {
+            sb.append(" x").append(extension);
+        }
+        return sb;
+    }
+
+    /**
+     * Check the length and the leading digit of this number against the rules of its country calling code
+     */
+    public PhoneNumberValidity validate() {
+        if (countryCodeGuessed) return PhoneNumberValidity.INVALID_COUNTRY_CODE;
+        if (phoneNumber.length() == 0) return PhoneNumberValidity.NOT_A_NUMBER;
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c < '0' || c > '9') return PhoneNumberValidity.NOT_A_NUMBER;
+        }
+        return Internationalization.PHONE_METADATA.check(PhoneNumberMetadata.callingCode(country.getPhonePrefix()), phoneNumber.length(), phoneNumber.charAt(0) - '0');
+    }
+
+    public boolean isPossible() {
+        return validate().isPossible();
     }
 
     public String getFormatedExtension() {
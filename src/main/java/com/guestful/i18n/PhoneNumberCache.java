@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.i18n;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of parsed phone numbers, enabled with {@link Internationalization#setPhoneNumberCache(PhoneNumberCache)}.
+ * <p>
+ * Entries are spread over lock-striped segments, each one evicting its least recently used entry when full.
+ * Parsing is done outside of the locks. Sharing results is safe since {@link PhoneNumber} is immutable.
+ */
+public final class PhoneNumberCache {
+
+    private static final int MAX_SEGMENTS = 16;
+    // smaller segments would make a poor LRU
+    private static final int MIN_SEGMENT_SIZE = 8;
+
+    private final int maximumSize;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PhoneNumberCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Illegal maximum size: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        // a power of two number of segments, whose sizes add up to the maximum size
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maximumSize / MIN_SEGMENT_SIZE)));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hits = getHitCount();
+        long requests = hits + getMissCount();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    PhoneNumber get(Key key, Function<Key, PhoneNumber> parser) {
+        int h = key.hashCode();
+        Segment segment = segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+        PhoneNumber phoneNumber;
+        synchronized (segment) {
+            phoneNumber = segment.get(key);
+        }
+        if (phoneNumber != null) {
+            hits.increment();
+            return phoneNumber;
+        }
+        misses.increment();
+        phoneNumber = parser.apply(key);
+        synchronized (segment) {
+            segment.put(key, phoneNumber);
+        }
+        return phoneNumber;
+    }
+
+    @Override
+    public String toString() {
+        return "PhoneNumberCache{size=" + size() + "/" + maximumSize + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "}";
+    }
+
+    private final class Segment extends LinkedHashMap<Key, PhoneNumber> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+
+        Segment(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, PhoneNumber> eldest) {
+            if (size() > maximumSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Arguments of one of the parsePhoneNumber methods
+     */
+    static final class Key {
+
+        final String phoneNumber;
+        final String phoneCode;
+        final String defaultCountryCode;
+        final boolean withPhoneCode;
+        private final int hash;
+
+        Key(String phoneNumber, String phoneCode, String defaultCountryCode, boolean withPhoneCode) {
+            this.phoneNumber = phoneNumber;
+            this.phoneCode = phoneCode;
+            this.defaultCountryCode = defaultCountryCode;
+            this.withPhoneCode = withPhoneCode;
+            int h = Objects.hashCode(phoneNumber);
+            h = 31 * h + Objects.hashCode(phoneCode);
+            h = 31 * h + Objects.hashCode(defaultCountryCode);
+            this.hash = 31 * h + (withPhoneCode ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hash == key.hash
+                && withPhoneCode == key.withPhoneCode
+                && Objects.equals(phoneNumber, key.phoneNumber)
+                && Objects.equals(phoneCode, key.phoneCode)
+                && Objects.equals(defaultCountryCode, key.defaultCountryCode);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
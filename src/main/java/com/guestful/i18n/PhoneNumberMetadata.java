@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.i18n;
+
+/**
+ * National number lengths and allowed leading digits, indexed by calling code (1 to 999).
+ * Calling codes without explicit rules accept any leading digit and the lengths allowed by E.164.
+ */
+final class PhoneNumberMetadata {
+
+    private static final int MAX_CALLING_CODE = 1000;
+    private static final short ALL_DIGITS = 0x3FF;
+
+    // main country of each calling code
+    private final Country[] countries = new Country[MAX_CALLING_CODE];
+    private final byte[] minLengths = new byte[MAX_CALLING_CODE];
+    private final byte[] maxLengths = new byte[MAX_CALLING_CODE];
+    // bit n is set when a national number can start with digit n
+    private final short[] leadingDigits = new short[MAX_CALLING_CODE];
+
+    void addCountry(Country country) {
+        int code = callingCode(country.getPhonePrefix());
+        if (code > 0 && countries[code] == null) {
+            countries[code] = country;
+            minLengths[code] = 4;
+            maxLengths[code] = (byte) (15 - (code < 10 ? 1 : code < 100 ? 2 : 3));
+            leadingDigits[code] = ALL_DIGITS;
+        }
+    }
+
+    void setRules(int callingCode, int minLength, int maxLength, String leading) {
+        if (callingCode <= 0 || callingCode >= MAX_CALLING_CODE || countries[callingCode] == null) {
+            throw new IllegalStateException("No country for calling code: " + callingCode);
+        }
+        short mask = 0;
+        for (int i = 0; i < leading.length(); i++) {
+            mask |= 1 << (leading.charAt(i) - '0');
+        }
+        minLengths[callingCode] = (byte) minLength;
+        maxLengths[callingCode] = (byte) maxLength;
+        leadingDigits[callingCode] = mask;
+    }
+
+    /**
+     * @return the main country of this calling code, as picked by the parser, or null
+     */
+    Country getCountry(int callingCode) {
+        return callingCode > 0 && callingCode < MAX_CALLING_CODE ? countries[callingCode] : null;
+    }
+
+    /**
+     * @return the longest national number of this calling code, or 0 if there is no country for it
+     */
+    int getMaxLength(int callingCode) {
+        return getCountry(callingCode) == null ? 0 : maxLengths[callingCode];
+    }
+
+    PhoneNumberValidity check(int callingCode, int length, int leadingDigit) {
+        if (getCountry(callingCode) == null) return PhoneNumberValidity.INVALID_COUNTRY_CODE;
+        if (length < minLengths[callingCode]) return PhoneNumberValidity.TOO_SHORT;
+        if (length > maxLengths[callingCode]) return PhoneNumberValidity.TOO_LONG;
+        if ((leadingDigits[callingCode] & (1 << leadingDigit)) == 0) return PhoneNumberValidity.INVALID_LEADING_DIGIT;
+        return PhoneNumberValidity.POSSIBLE;
+    }
+
+    /**
+     * @return the calling code of a prefix like "+33", or -1 if there is none
+     */
+    static int callingCode(String phonePrefix) {
+        if (phonePrefix.length() < 2 || phonePrefix.length() > 4) return -1;
+        int code = 0;
+        for (int i = 1; i < phonePrefix.length(); i++) {
+            char c = phonePrefix.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            code = code * 10 + (c - '0');
+        }
+        return code;
+    }
+
+}
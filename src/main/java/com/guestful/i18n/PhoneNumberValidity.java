@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.i18n;
+
+/**
+ * Outcome of the length and leading digit checks done on a phone number.
+ */
+public enum PhoneNumberValidity {
+
+    POSSIBLE,
+    NOT_A_NUMBER,
+    INVALID_COUNTRY_CODE,
+    TOO_SHORT,
+    TOO_LONG,
+    INVALID_LEADING_DIGIT;
+
+    public boolean isPossible() {
+        return this == POSSIBLE;
+    }
+
+}
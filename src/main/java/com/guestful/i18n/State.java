@@ -17,6 +17,7 @@ package com.guestful.i18n;
 
 import java.time.ZoneId;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 
 /**
@@ -28,7 +29,8 @@ public class State {
 
     private final String code;
     private final String name;
-    private final Collection<ZoneId> timeZones = new HashSet<>();
+    // read-only: most subdivisions have zero or one time zone, only switch to a set when needed
+    private Collection<ZoneId> timeZones = Collections.emptySet();
 
     public State(String code, String name) {
         this.code = code;
@@ -44,9 +46,22 @@ public class State {
     }
 
     public void addTimeZone(String id) {
-        timeZones.add(ZoneId.of(id));
+        addTimeZone(ZoneId.of(id));
     }
 
+    void addTimeZone(ZoneId zoneId) {
+        if (timeZones.isEmpty()) {
+            timeZones = Collections.singleton(zoneId);
+        } else if (!timeZones.contains(zoneId)) {
+            Collection<ZoneId> zones = new HashSet<>(timeZones);
+            zones.add(zoneId);
+            timeZones = Collections.unmodifiableCollection(zones);
+        }
+    }
+
+    /**
+     * @return a read-only view of the time zones: use {@link #addTimeZone(String)} to add one
+     */
     public Collection<ZoneId> getTimeZones() {
         return timeZones;
     }
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.i18n;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Bytes allocated per call on the lookup hot paths, so that a change adding allocations fails the build.
+ * Budgets are about 1.5 times the highest of what JDK 8 and JDK 17 measure today; a call allocating nothing
+ * gets the size of one small object.
+ */
+@RunWith(JUnit4.class)
+public class AllocationTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 10_000;
+
+    private static final Map<String, Object> BUNDLE = Internationalization.map(
+        "en", "Your table is booked",
+        "fr", "Votre table est confirmee",
+        "de", Arrays.asList("Ihr Tisch", "ist reserviert"));
+
+    private static final LocaleMatcher MATCHER = new LocaleMatcher(Arrays.asList(Locale.ENGLISH, Locale.FRENCH, Locale.GERMAN), Locale.ENGLISH);
+    private static final List<Locale> PREFERENCES = Arrays.asList(Locale.CANADA_FRENCH, Locale.ENGLISH);
+
+    private static com.sun.management.ThreadMXBean threadMXBean;
+
+    private static Object sink;
+
+    @BeforeClass
+    public static void init() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("Allocation measurement not supported by this JVM", bean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue("Allocation measurement not supported by this JVM", threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void parsePhoneNumber() {
+        assertAllocatedAtMost(3850, () -> Internationalization.parsePhoneNumber("+1 514 660 4287", "FR"));
+        assertAllocatedAtMost(3900, () -> Internationalization.parsePhoneNumber("04 78 50 98 46 x 456", "FR"));
+        assertAllocatedAtMost(3400, () -> Internationalization.parsePhoneNumber("514 660 4287", "1", "CA"));
+    }
+
+    @Test
+    public void parseCachedPhoneNumber() {
+        Internationalization.setPhoneNumberCache(new PhoneNumberCache(16));
+        try {
+            assertAllocatedAtMost(48, () -> Internationalization.parsePhoneNumber("+1 514 660 4287", "FR"));
+        } finally {
+            Internationalization.setPhoneNumberCache(null);
+        }
+    }
+
+    @Test
+    public void normalize() {
+        assertAllocatedAtMost(3650, () -> PhoneNumber.normalize("+1 (514) 660-4287"));
+    }
+
+    @Test
+    public void isPostalCodeValid() {
+        assertAllocatedAtMost(300, () -> Internationalization.isPostalCodeValid("CA", "H2X 1Y4"));
+    }
+
+    @Test
+    public void getTimeZone() {
+        assertAllocatedAtMost(36, () -> Internationalization.getTimeZone("US", "TX"));
+        assertAllocatedAtMost(60, () -> Internationalization.getTimeZone("FR"));
+    }
+
+    @Test
+    public void getCountryName() {
+        assertAllocatedAtMost(580, () -> Internationalization.getCountryName("CA", Locale.FRENCH));
+    }
+
+    @Test
+    public void getMessage() {
+        assertAllocatedAtMost(16, () -> Internationalization.getMessage(BUNDLE, Locale.CANADA_FRENCH, Locale.ENGLISH));
+        assertAllocatedAtMost(1150, () -> Internationalization.getMessage(BUNDLE, Locale.GERMANY, Locale.ENGLISH));
+    }
+
+    @Test
+    public void parseLocale() {
+        assertAllocatedAtMost(625, () -> LocaleParser.parse("fr_CA", Locale.ENGLISH));
+    }
+
+    @Test
+    public void matchLocale() {
+        assertAllocatedAtMost(310, () -> MATCHER.match(PREFERENCES));
+    }
+
+    private static void assertAllocatedAtMost(long budget, Supplier<?> call) {
+        for (int i = 0; i < WARMUP; i++) {
+            sink = call.get();
+        }
+        long threadId = Thread.currentThread().getId();
+        long start = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = call.get();
+        }
+        long perCall = (threadMXBean.getThreadAllocatedBytes(threadId) - start) / ITERATIONS;
+        assertTrue("Allocated " + perCall + " bytes per call for " + sink + ", budget is " + budget, perCall <= budget);
+    }
+
+}
@@ -26,11 +26,18 @@ import org.junit.runners.JUnit4;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * date 2014-06-17
@@ -54,6 +61,58 @@ public class I18nTest {
         Assert.assertTrue(list.isEmpty());
     }
 
+    @Test
+    public void states() throws Exception {
+        assertEquals(13, Internationalization.getStateCodes("CA").size());
+        assertEquals("Quebec", Internationalization.getStateName("CA", "QC"));
+        assertEquals("US/Central", Internationalization.getTimeZone("US", "TX"));
+        // territories with their own country code are not listed as states
+        assertEquals(51, Internationalization.getStateCodes("US").size());
+        assertEquals("", Internationalization.getStateName("US", "PR"));
+        assertEquals("", Internationalization.getStateName("FR", "RE"));
+        assertEquals("", Internationalization.getStateName("NL", "AW"));
+        assertEquals("Europe/Paris", Internationalization.getTimeZone("FR"));
+
+        assertEquals(32, Internationalization.getStateCodes("MX").size());
+        assertEquals("Quintana Roo", Internationalization.getStateName("MX", "ROO"));
+        assertEquals("America/Cancun", Internationalization.getTimeZone("MX", "ROO"));
+        assertEquals("Australia/Perth", Internationalization.getTimeZone("AU", "WA"));
+        assertEquals("America/Rio_Branco", Internationalization.getTimeZone("BR", "AC"));
+        assertEquals("Atlantic/Canary", Internationalization.getTimeZone("ES", "TF"));
+
+        // no time zone for the subdivision: use the country's one
+        assertEquals("Paris", Internationalization.getStateName("FR", "75"));
+        assertEquals("Europe/Paris", Internationalization.getTimeZone("FR", "75"));
+    }
+
+    @Test
+    public void locales() throws Exception {
+        assertTrue(Internationalization.isSupportedLang("fr"));
+        assertFalse(Internationalization.isSupportedLang("xx"));
+
+        LocaleMatcher matcher = new LocaleMatcher(Arrays.asList(Locale.ENGLISH, Locale.CANADA_FRENCH, Locale.GERMANY), Locale.ENGLISH);
+        assertEquals(Locale.CANADA_FRENCH, matcher.match(Arrays.asList(Locale.CANADA_FRENCH, Locale.ENGLISH)));
+        assertEquals(Locale.CANADA_FRENCH, matcher.match(Arrays.asList(Locale.ITALIAN, Locale.FRANCE)));
+        assertEquals(Locale.GERMANY, matcher.match(Arrays.asList(new Locale("de", "AT"))));
+        assertEquals(Locale.ENGLISH, matcher.match(Arrays.asList(Locale.US, Locale.FRENCH)));
+        assertEquals(Locale.ENGLISH, matcher.match(Arrays.asList(Locale.JAPANESE)));
+        assertEquals(Locale.ENGLISH, matcher.match(Collections.emptyList()));
+        // memoized
+        assertEquals(Locale.CANADA_FRENCH, matcher.match(Arrays.asList(Locale.ITALIAN, Locale.FRANCE)));
+        // junk preferences only evict the least recently used results
+        for (int i = 0; i < 2000; i++) {
+            matcher.match(Arrays.asList(new Locale("x" + i)));
+        }
+        assertEquals(Locale.CANADA_FRENCH, matcher.match(Collections.singletonList(Locale.FRANCE)));
+        assertEquals(Locale.GERMANY, matcher.match(Arrays.asList(new Locale("de", "AT"))));
+
+        // script and variant are dropped before falling back to the language
+        LocaleMatcher chinese = new LocaleMatcher(Arrays.asList(Locale.SIMPLIFIED_CHINESE, Locale.TRADITIONAL_CHINESE), Locale.ENGLISH);
+        assertEquals(Locale.TRADITIONAL_CHINESE, chinese.match(Arrays.asList(Locale.forLanguageTag("zh-Hant-TW"))));
+        assertEquals(Locale.SIMPLIFIED_CHINESE, chinese.match(Arrays.asList(Locale.forLanguageTag("zh-Hans-CN"))));
+        assertEquals(Locale.US, new LocaleMatcher(Arrays.asList(Locale.UK, Locale.US), Locale.UK).match(Arrays.asList(new Locale("en", "US", "POSIX"))));
+    }
+
     @Test
     public void phones() throws Exception {
         assertEquals("+33 0478509846 x456", Internationalization.parsePhoneNumber("04 78 50 98 46 x 456", "FR").toString());
@@ -74,4 +133,107 @@ public class I18nTest {
         assertEquals("+335146604287", Internationalization.parsePhoneNumber("099 514 660 4287", "FR").format());
     }
 
+    @Test
+    public void phoneNumberCache() throws Exception {
+        PhoneNumberCache cache = new PhoneNumberCache(16);
+        Internationalization.setPhoneNumberCache(cache);
+        try {
+            PhoneNumber phoneNumber = Internationalization.parsePhoneNumber("514 660 4287", "CA");
+            assertSame(phoneNumber, Internationalization.parsePhoneNumber("514 660 4287", "CA"));
+            assertNotSame(phoneNumber, Internationalization.parsePhoneNumber("514 660 4287", "1", "CA"));
+            assertEquals("+1 5146604287", Internationalization.parsePhoneNumber("514 660 4287", "1", "CA").toString());
+            assertEquals(2, cache.getHitCount());
+            assertEquals(2, cache.getMissCount());
+            assertEquals(2, cache.size());
+
+            for (int i = 0; i < 100; i++) {
+                Internationalization.parsePhoneNumber("514 660 " + (1000 + i), "CA");
+            }
+            assertTrue(cache.size() <= 16);
+            assertEquals(102 - cache.size(), cache.getEvictionCount());
+
+            // the maximum size is never exceeded, whatever the number of segments
+            for (int size : new int[]{1, 7, 17, 100, 1000}) {
+                cache = new PhoneNumberCache(size);
+                Internationalization.setPhoneNumberCache(cache);
+                for (int i = 0; i < 3 * size; i++) {
+                    Internationalization.parsePhoneNumber("514 66" + (10000 + i), "CA");
+                }
+                assertTrue(cache.size() <= size);
+                assertEquals(3 * size - cache.size(), cache.getEvictionCount());
+            }
+        } finally {
+            Internationalization.setPhoneNumberCache(null);
+        }
+    }
+
+    @Test
+    public void phoneFormats() throws Exception {
+        assertEquals("04 78 50 98 46", Internationalization.parsePhoneNumber("0478509846", "FR").formatNational());
+        assertEquals("+33 4 78 50 98 46 x456", Internationalization.parsePhoneNumber("04 78 50 98 46 x 456", "FR").formatInternational());
+
+        assertEquals("(514) 660-4287", Internationalization.parsePhoneNumber("514 660 4287", "CA").formatNational());
+        assertEquals("+1 514-660-4287", Internationalization.parsePhoneNumber("514 660 4287", "CA").formatInternational());
+
+        // typed in international form: formats of the main country of the calling code
+        assertEquals("+1 514-660-4287", Internationalization.parsePhoneNumber("+1 514 660 4287", "FR").formatInternational());
+        assertEquals("(514) 660-4287", Internationalization.parsePhoneNumber("+1 514 660 4287", "FR").formatNational());
+        assertEquals("+1 514-660-4287", Internationalization.parsePhoneNumber("514 660 4287", "1", "FR").formatInternational());
+        assertEquals("+358 40 123 4567", Internationalization.parsePhoneNumber("+358 40 123 4567", "FR").formatInternational());
+        // unless the default country uses the same calling code
+        assertEquals("US", Internationalization.parsePhoneNumber("514 660 4287", "1", "US").getCountry().getCode());
+        assertEquals("US", Internationalization.parsePhoneNumber("+1 212 555 0100", "US").getCountry().getCode());
+        assertEquals("CA", Internationalization.parsePhoneNumber("+1 514 660 4287", "CA").getCountry().getCode());
+        assertEquals("AX", Internationalization.parsePhoneNumber("+358 18 12345", "AX").getCountry().getCode());
+
+        assertEquals("+44 7911 123456", Internationalization.parsePhoneNumber("07911 123456", "GB").formatInternational());
+        assertEquals("07911 123456", Internationalization.parsePhoneNumber("+44 7911 123456", "FR").formatNational());
+
+        // same length, template picked by leading digit
+        assertEquals("0412 345 678", Internationalization.parsePhoneNumber("0412345678", "AU").formatNational());
+        assertEquals("02 9876 5432", Internationalization.parsePhoneNumber("02 9876 5432", "AU").formatNational());
+        assertEquals("06 12345678", Internationalization.parsePhoneNumber("0612345678", "NL").formatNational());
+        assertEquals("020 1234567", Internationalization.parsePhoneNumber("020 1234567", "NL").formatNational());
+
+        // no template for this length: digits are kept as-is
+        assertEquals("+33 47850", Internationalization.parsePhoneNumber("047850", "FR").formatInternational());
+
+        StringBuilder sb = new StringBuilder("Call ");
+        Internationalization.parsePhoneNumber("514 660 4287", "US").appendNational(sb).append('.');
+        assertEquals("Call (514) 660-4287.", sb.toString());
+    }
+
+    @Test
+    public void phoneValidity() throws Exception {
+        assertTrue(Internationalization.parsePhoneNumber("04 78 50 98 46 x 456", "FR").isPossible());
+        assertEquals(PhoneNumberValidity.TOO_SHORT, Internationalization.parsePhoneNumber("04 78 50 98", "FR").validate());
+        assertEquals(PhoneNumberValidity.INVALID_LEADING_DIGIT, Internationalization.parsePhoneNumber("114 660 4287", "CA").validate());
+        // unknown country code: attached to the default country, but not possible
+        assertTrue(Internationalization.parsePhoneNumber("+999 514 660 4287", "CA").isCountryCodeGuessed());
+        assertEquals(PhoneNumberValidity.INVALID_COUNTRY_CODE, Internationalization.parsePhoneNumber("+999 514 660 4287", "CA").validate());
+        assertEquals(PhoneNumberValidity.INVALID_COUNTRY_CODE, Internationalization.parsePhoneNumber("514 660 4287", "999", "CA").validate());
+        assertTrue(Internationalization.parsePhoneNumber("514 660 4287", null, "CA").isPossible());
+        // 11 digits without "+": only the trunk prefix is dropped, so this is a national number
+        assertTrue(Internationalization.parsePhoneNumber("07911 123456", "GB").isPossible());
+        assertEquals(PhoneNumberValidity.POSSIBLE, Internationalization.validatePhoneNumber("07911 123456", "GB"));
+        // 11 digits without "+" are national where national numbers can be that long
+        assertEquals("+55 11912345678", Internationalization.parsePhoneNumber("(11) 91234-5678", "BR").toString());
+        assertEquals(PhoneNumberValidity.POSSIBLE, Internationalization.validatePhoneNumber("(11) 91234-5678", "BR"));
+        assertEquals("+55 11912345678", Internationalization.parsePhoneNumber("55 11 91234-5678", "BR").toString());
+        assertEquals(PhoneNumberValidity.POSSIBLE, Internationalization.validatePhoneNumber("55 11 91234-5678", "BR"));
+        assertEquals(PhoneNumberValidity.INVALID_COUNTRY_CODE, Internationalization.parsePhoneNumber("099 514 660 4287", "FR").validate());
+        assertEquals(PhoneNumberValidity.INVALID_COUNTRY_CODE, Internationalization.validatePhoneNumber("099 514 660 4287", "FR"));
+
+        assertEquals(PhoneNumberValidity.POSSIBLE, Internationalization.validatePhoneNumber("04 78 50 98 46 x 456", "FR"));
+        assertEquals(PhoneNumberValidity.POSSIBLE, Internationalization.validatePhoneNumber("+33 (0)4 78 50 98 46", "CA"));
+        assertEquals(PhoneNumberValidity.POSSIBLE, Internationalization.validatePhoneNumber("1 514 660 4287", "FR"));
+        assertEquals(PhoneNumberValidity.INVALID_COUNTRY_CODE, Internationalization.validatePhoneNumber("+999 514 660 4287", "CA"));
+        assertEquals(PhoneNumberValidity.TOO_LONG, Internationalization.validatePhoneNumber("+1 514 660 42870", "CA"));
+        assertEquals(PhoneNumberValidity.INVALID_LEADING_DIGIT, Internationalization.validatePhoneNumber("014 660 4287", "US"));
+        assertEquals(PhoneNumberValidity.NOT_A_NUMBER, Internationalization.validatePhoneNumber("n/a", "FR"));
+
+        assertEquals(Arrays.asList("04 78 50 98 46", "+1 514 660 4287"), Internationalization.filterPossiblePhoneNumbers(Arrays.asList("04 78 50 98 46", "0478", null, "+1 514 660 4287", "+999 514 660 4287"), "FR"));
+        assertEquals(Arrays.asList("(11) 91234-5678", "(11) 3456-7890"), Internationalization.filterPossiblePhoneNumbers(Arrays.asList("(11) 91234-5678", "(11) 3456-7890", "91234"), "BR"));
+    }
+
 }